@@ -0,0 +1,145 @@
+package com.ehgames.struct;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An index of the chunks in a RIFF/IFF-style container, built by {@link ChunkScanner#index(int...)}.
+ * Chunks are kept in the order they occur in the buffer, with container chunks before their children.
+ * Ids are FourCCs packed into ints(see {@link StringUtils#fourCC(String)}).
+ */
+public final class ChunkIndex {
+	private final ByteBuffer data;
+	private int count;
+	private int[] ids = new int[16];
+	private int[] offsets = new int[16];
+	private int[] lengths = new int[16];
+	private int[] depths = new int[16];
+
+	ChunkIndex(ByteBuffer data) {
+		this.data = data;
+	}
+
+	void add(int id, int offset, int length, int depth) {
+		if(count == ids.length) {
+			int capacity = count * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			offsets = Arrays.copyOf(offsets, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			depths = Arrays.copyOf(depths, capacity);
+		}
+		ids[count] = id;
+		offsets[count] = offset;
+		lengths[count] = length;
+		depths[count] = depth;
+		count++;
+	}
+
+	/**
+	 * @return The number of chunks in the index
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * @param i The position of the chunk in the index
+	 * @return The FourCC of the chunk as a packed int
+	 */
+	public int id(int i) {
+		return ids[checkIndex(i)];
+	}
+
+	/**
+	 * @param i The position of the chunk in the index
+	 * @return The absolute index in the buffer of the chunk's payload
+	 */
+	public int offset(int i) {
+		return offsets[checkIndex(i)];
+	}
+
+	/**
+	 * @param i The position of the chunk in the index
+	 * @return The length of the chunk's payload in bytes, not including padding
+	 */
+	public int length(int i) {
+		return lengths[checkIndex(i)];
+	}
+
+	/**
+	 * @param i The position of the chunk in the index
+	 * @return How many containers the chunk is nested within, with 0 being the top level
+	 */
+	public int depth(int i) {
+		return depths[checkIndex(i)];
+	}
+
+	/**
+	 * Finds the first chunk with the given id
+	 * @param id A FourCC as a packed int
+	 * @return The position of the chunk in the index, or -1 if there is none
+	 */
+	public int indexOf(int id) {
+		return indexOf(id, 0);
+	}
+
+	/**
+	 * Finds the next chunk with the given id, for ids that occur more than once
+	 * @param id A FourCC as a packed int
+	 * @param from The position in the index to start searching from
+	 * @return The position of the chunk in the index, or -1 if there is none
+	 */
+	public int indexOf(int id, int from) {
+		for(int i = Math.max(from, 0); i < count; i++) {
+			if(ids[i] == id) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param id A FourCC as a packed int
+	 * @return The absolute index in the buffer of the first chunk's payload with the given id, or -1 if there is none
+	 */
+	public int offsetOf(int id) {
+		int i = indexOf(id);
+		return i < 0 ? -1 : offsets[i];
+	}
+
+	/**
+	 * Creates a view of a chunk's payload without copying it
+	 * @param i The position of the chunk in the index
+	 * @return The payload of the chunk, sharing the byte order of the indexed buffer
+	 */
+	public ByteBuffer payload(int i) {
+		checkIndex(i);
+		return ChunkScanner.slice(data, offsets[i], lengths[i]);
+	}
+
+	/**
+	 * Creates a view of the payload of the first chunk with the given id without copying it
+	 * @param id A FourCC as a packed int
+	 * @return The payload of the chunk, or null if there is none
+	 */
+	public ByteBuffer find(int id) {
+		int i = indexOf(id);
+		return i < 0 ? null : ChunkScanner.slice(data, offsets[i], lengths[i]);
+	}
+
+	/**
+	 * Reads the payload of the first chunk with the given id using {@link StructReader#read(ByteBuffer, Class)}
+	 * @param id A FourCC as a packed int
+	 * @param cls The type to read
+	 * @return The object that was read, or null if there is no chunk with the given id
+	 */
+	public <T> T read(int id, Class<T> cls) {
+		ByteBuffer payload = find(id);
+		return payload == null ? null : StructReader.read(payload, cls);
+	}
+
+	private int checkIndex(int i) {
+		if(i < 0 || i >= count) {
+			throw new IndexOutOfBoundsException("Chunk " + i + " out of range for index of " + count + " chunks");
+		}
+		return i;
+	}
+}
@@ -0,0 +1,177 @@
+package com.ehgames.struct;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Walks the chunks of a RIFF/IFF-style container, where each chunk is a FourCC, a 32-bit length, then the payload.
+ * Chunk ids are compared as packed ints(see {@link StringUtils#fourCC(String)}) and payloads are skipped by length
+ * without being read, so scanning a container allocates nothing.
+ * The length is read using the byte order of the ByteBuffer, so RIFF(little endian) and IFF(big endian) are both supported.
+ * The position of the ByteBuffer is never changed.
+ */
+public final class ChunkScanner {
+	private final ByteBuffer data;
+	private final int end;
+	private final boolean padded;
+	private int next;
+
+	private int id;
+	private int offset = -1;
+	private int length;
+
+	/**
+	 * Creates a scanner over the remaining bytes of the buffer, with payloads padded to even lengths
+	 * @param data The ByteBuffer containing the chunks
+	 */
+	public ChunkScanner(ByteBuffer data) {
+		this(data, true);
+	}
+
+	/**
+	 * Creates a scanner over the remaining bytes of the buffer
+	 * @param data The ByteBuffer containing the chunks
+	 * @param padded If true, a padding byte follows any payload of odd length, as in RIFF and IFF
+	 */
+	public ChunkScanner(ByteBuffer data, boolean padded) {
+		this(data, data.position(), data.limit(), padded);
+	}
+
+	private ChunkScanner(ByteBuffer data, int start, int end, boolean padded) {
+		this.data = data;
+		this.next = start;
+		this.end = end;
+		this.padded = padded;
+	}
+
+	/**
+	 * Advances to the next chunk.
+	 * A chunk whose length runs past the end of the container is truncated to the bytes that remain
+	 * @return false if there are no more chunks
+	 */
+	public boolean next() {
+		if(end - next < 8) {
+			id = 0;
+			offset = -1;
+			length = 0;
+			return false;
+		}
+		id = StringUtils.getFourCCInt(data, next);
+		length = data.getInt(next + 4);
+		offset = next + 8;
+
+		int remaining = end - offset;
+		if(length < 0 || length > remaining) {
+			System.err.println("Chunk " + StringUtils.fourCCToString(id) + " at " + (offset - 8) + " is truncated");
+			length = remaining;
+		}
+
+		int skip = length;
+		if(padded && (skip & 1) != 0 && skip < remaining) {
+			skip++;
+		}
+		next = offset + skip;
+		return true;
+	}
+
+	/**
+	 * @return The FourCC of the current chunk as a packed int, or 0 if there is no current chunk
+	 */
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * @param fourCC A FourCC as a packed int
+	 * @return true if the current chunk has the given id
+	 */
+	public boolean is(int fourCC) {
+		return offset >= 0 && id == fourCC;
+	}
+
+	/**
+	 * @return The absolute index in the buffer of the current chunk's payload, or -1 if there is no current chunk
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	/**
+	 * @return The length of the current chunk's payload in bytes, not including padding, or 0 if there is no current chunk
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Gets the form type of a container chunk such as RIFF, LIST, or FORM, which is the FourCC at the start of its payload
+	 * @return The form type as a packed int
+	 * @throws IllegalStateException if there is no current chunk or its payload is too short to hold a form type
+	 */
+	public int formType() {
+		checkCurrent();
+		if(length < 4) {
+			throw new IllegalStateException("Chunk " + StringUtils.fourCCToString(id) + " at " + (offset - 8) + " is too short to have a form type");
+		}
+		return StringUtils.getFourCCInt(data, offset);
+	}
+
+	/**
+	 * Creates a view of the current chunk's payload without copying it.
+	 * The returned ByteBuffer shares the byte order of the scanned buffer and can be passed straight to {@link StructReader}
+	 * @return The payload of the current chunk
+	 * @throws IllegalStateException if there is no current chunk
+	 */
+	public ByteBuffer payload() {
+		checkCurrent();
+		return slice(data, offset, length);
+	}
+
+	/**
+	 * Creates a scanner over the chunks nested within the current chunk's payload
+	 * @param headerSize The number of bytes to skip at the start of the payload, such as 4 for the form type of a RIFF or LIST chunk
+	 * @return A scanner over the nested chunks
+	 * @throws IllegalStateException if there is no current chunk
+	 */
+	public ChunkScanner nested(int headerSize) {
+		checkCurrent();
+		int start = offset + Math.min(Math.max(headerSize, 0), length);
+		return new ChunkScanner(data, start, offset + length, padded);
+	}
+
+	/**
+	 * Scans all remaining chunks and records them in an index.
+	 * Chunks with one of the given container ids are recorded and then descended into, skipping their 4 byte form type
+	 * @param containerIds FourCCs of container chunks such as RIFF, LIST, or FORM as packed ints
+	 * @return The index of the chunks
+	 */
+	public ChunkIndex index(int... containerIds) {
+		ChunkIndex index = new ChunkIndex(data);
+		index(this, index, containerIds, 0);
+		return index;
+	}
+
+	private static void index(ChunkScanner scanner, ChunkIndex index, int[] containerIds, int depth) {
+		while(scanner.next()) {
+			index.add(scanner.id, scanner.offset, scanner.length, depth);
+			for(int containerId : containerIds) {
+				if(scanner.id == containerId && scanner.length >= 4) {
+					index(scanner.nested(4), index, containerIds, depth + 1);
+					break;
+				}
+			}
+		}
+	}
+
+	private void checkCurrent() {
+		if(offset < 0) {
+			throw new IllegalStateException("There is no current chunk");
+		}
+	}
+
+	static ByteBuffer slice(ByteBuffer data, int offset, int length) {
+		ByteBuffer dup = data.duplicate();
+		dup.limit(offset + length);
+		dup.position(offset);
+		return dup.slice().order(data.order());
+	}
+}
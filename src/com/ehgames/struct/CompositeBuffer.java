@@ -0,0 +1,459 @@
+package com.ehgames.struct;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+ * A sequence of ByteBuffers that can be read and written as if it were one contiguous buffer, without copying the fragments together.
+ * Values that lie within a single fragment are read and written directly from that fragment.
+ * Only values that straddle a boundary between fragments are assembled, a few bytes at a time.
+ * <p>
+ * Like scattering and gathering channels, the remaining bytes of each fragment are used and each fragment's position is advanced as it is consumed.
+ * Positions and indices of this buffer are relative to the start of the first fragment's remaining bytes.
+ * All fragments are set to the byte order of the composite buffer.
+ */
+public final class CompositeBuffer {
+	private final ByteBuffer[] fragments;
+	/** index in this buffer of each fragment's first byte */
+	private final int[] bases;
+	/** position of each fragment when this buffer was created */
+	private final int[] starts;
+	private final int[] lengths;
+	private final int limit;
+	private final ByteBuffer scratch = ByteBuffer.allocate(Long.BYTES);
+	private ByteOrder order;
+	/** the fragment containing the current position */
+	private int index;
+	/** copy of the bytes from copyStart to the limit, shared by every adapter reading fragmented data */
+	private ByteBuffer copy;
+	private int copyStart;
+	/** temporary buffer shared by every adapter writing fragmented data */
+	private ByteBuffer adapterOutput;
+
+	/**
+	 * Creates a composite buffer over the remaining bytes of each fragment, using the byte order of the first fragment
+	 * @param fragments The ByteBuffers making up the data, in order
+	 */
+	public CompositeBuffer(ByteBuffer... fragments) {
+		if(fragments.length == 0) {
+			fragments = new ByteBuffer[] { ByteBuffer.allocate(0) };
+		}
+		this.fragments = fragments;
+		bases = new int[fragments.length];
+		starts = new int[fragments.length];
+		lengths = new int[fragments.length];
+
+		int base = 0;
+		for(int i = 0; i < fragments.length; i++) {
+			bases[i] = base;
+			starts[i] = fragments[i].position();
+			lengths[i] = fragments[i].remaining();
+			base += lengths[i];
+		}
+		limit = base;
+		order(fragments[0].order());
+		advance();
+	}
+
+	/**
+	 * @return The byte order used to read and write values
+	 */
+	public ByteOrder order() {
+		return order;
+	}
+
+	/**
+	 * Sets the byte order used to read and write values, including the byte order of every fragment
+	 * @param order The new byte order
+	 * @return This buffer
+	 */
+	public CompositeBuffer order(ByteOrder order) {
+		this.order = order;
+		scratch.order(order);
+		for(ByteBuffer fragment : fragments) {
+			fragment.order(order);
+		}
+		return this;
+	}
+
+	/**
+	 * @return The number of bytes across all fragments
+	 */
+	public int limit() {
+		return limit;
+	}
+
+	public int position() {
+		return bases[index] + fragments[index].position() - starts[index];
+	}
+
+	/**
+	 * Sets the position of this buffer, moving the position of every fragment to match
+	 * @param newPosition The new position
+	 * @return This buffer
+	 */
+	public CompositeBuffer position(int newPosition) {
+		if(newPosition < 0 || newPosition > limit) {
+			throw new IllegalArgumentException("Position " + newPosition + " out of range for limit " + limit);
+		}
+		index = fragments.length - 1;
+		for(int i = fragments.length - 1; i >= 0; i--) {
+			int local = Math.min(Math.max(newPosition - bases[i], 0), lengths[i]);
+			fragments[i].position(starts[i] + local);
+			if(newPosition < bases[i] + lengths[i]) {
+				index = i;
+			}
+		}
+		return this;
+	}
+
+	public int remaining() {
+		return limit - position();
+	}
+
+	public boolean hasRemaining() {
+		return position() < limit;
+	}
+
+	/**
+	 * Gets a byte at an absolute index without changing the position
+	 * @param i The index of the byte
+	 * @return The byte at the index
+	 */
+	public byte get(int i) {
+		if(i < 0 || i >= limit) {
+			throw new IndexOutOfBoundsException("Index " + i + " out of range for limit " + limit);
+		}
+		int frag = index;
+		if(i < bases[frag] || i >= bases[frag] + lengths[frag]) {
+			frag = 0;
+			while(i >= bases[frag] + lengths[frag]) {
+				frag++;
+			}
+		}
+		return fragments[frag].get(starts[frag] + i - bases[frag]);
+	}
+
+	public byte get() {
+		ByteBuffer cur = fragments[index];
+		if(!cur.hasRemaining()) {
+			advance();
+			cur = fragments[index];
+		}
+		return cur.get();
+	}
+
+	public CompositeBuffer get(byte[] dst) {
+		return get(dst, 0, dst.length);
+	}
+
+	public CompositeBuffer get(byte[] dst, int offset, int length) {
+		if(length > remaining()) {
+			throw new BufferUnderflowException();
+		}
+		while(length > 0) {
+			advance();
+			ByteBuffer cur = fragments[index];
+			int count = Math.min(cur.remaining(), length);
+			cur.get(dst, offset, count);
+			offset += count;
+			length -= count;
+		}
+		return this;
+	}
+
+	public short getShort() {
+		ByteBuffer cur = contiguous(Short.BYTES);
+		return (cur != null ? cur : gather(Short.BYTES)).getShort();
+	}
+
+	public char getChar() {
+		ByteBuffer cur = contiguous(Character.BYTES);
+		return (cur != null ? cur : gather(Character.BYTES)).getChar();
+	}
+
+	public int getInt() {
+		ByteBuffer cur = contiguous(Integer.BYTES);
+		return (cur != null ? cur : gather(Integer.BYTES)).getInt();
+	}
+
+	public long getLong() {
+		ByteBuffer cur = contiguous(Long.BYTES);
+		return (cur != null ? cur : gather(Long.BYTES)).getLong();
+	}
+
+	public float getFloat() {
+		return Float.intBitsToFloat(getInt());
+	}
+
+	public double getDouble() {
+		return Double.longBitsToDouble(getLong());
+	}
+
+	/**
+	 * Reads enough chars to fill the array
+	 * @param dst The array to read chars into
+	 * @return This buffer
+	 */
+	public CompositeBuffer getChars(char[] dst) {
+		int size = dst.length * Character.BYTES;
+		ByteBuffer cur = contiguous(size);
+		if(cur != null) {
+			cur.asCharBuffer().get(dst);
+			cur.position(cur.position() + size);
+		} else {
+			for(int i = 0; i < dst.length; i++) {
+				dst[i] = getChar();
+			}
+		}
+		return this;
+	}
+
+	public CompositeBuffer put(byte value) {
+		copy = null;
+		ByteBuffer cur = fragments[index];
+		if(!cur.hasRemaining()) {
+			advance();
+			cur = fragments[index];
+		}
+		cur.put(value);
+		return this;
+	}
+
+	public CompositeBuffer put(byte[] src) {
+		return put(src, 0, src.length);
+	}
+
+	public CompositeBuffer put(byte[] src, int offset, int length) {
+		copy = null;
+		if(length > remaining()) {
+			throw new BufferOverflowException();
+		}
+		while(length > 0) {
+			advance();
+			ByteBuffer cur = fragments[index];
+			int count = Math.min(cur.remaining(), length);
+			cur.put(src, offset, count);
+			offset += count;
+			length -= count;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the remaining bytes of a ByteBuffer, advancing its position
+	 * @param src The ByteBuffer to write
+	 * @return This buffer
+	 */
+	public CompositeBuffer put(ByteBuffer src) {
+		copy = null;
+		if(src.remaining() > remaining()) {
+			throw new BufferOverflowException();
+		}
+		while(src.hasRemaining()) {
+			advance();
+			ByteBuffer cur = fragments[index];
+			int count = Math.min(cur.remaining(), src.remaining());
+			ByteBuffer part = src.duplicate();
+			part.limit(part.position() + count);
+			cur.put(part);
+			src.position(src.position() + count);
+		}
+		return this;
+	}
+
+	public CompositeBuffer putShort(short value) {
+		copy = null;
+		ByteBuffer cur = contiguous(Short.BYTES);
+		if(cur != null) {
+			cur.putShort(value);
+		} else {
+			scratch.clear();
+			scratch.putShort(value);
+			scatter();
+		}
+		return this;
+	}
+
+	public CompositeBuffer putChar(char value) {
+		copy = null;
+		ByteBuffer cur = contiguous(Character.BYTES);
+		if(cur != null) {
+			cur.putChar(value);
+		} else {
+			scratch.clear();
+			scratch.putChar(value);
+			scatter();
+		}
+		return this;
+	}
+
+	public CompositeBuffer putInt(int value) {
+		copy = null;
+		ByteBuffer cur = contiguous(Integer.BYTES);
+		if(cur != null) {
+			cur.putInt(value);
+		} else {
+			scratch.clear();
+			scratch.putInt(value);
+			scatter();
+		}
+		return this;
+	}
+
+	public CompositeBuffer putLong(long value) {
+		copy = null;
+		ByteBuffer cur = contiguous(Long.BYTES);
+		if(cur != null) {
+			cur.putLong(value);
+		} else {
+			scratch.clear();
+			scratch.putLong(value);
+			scatter();
+		}
+		return this;
+	}
+
+	public CompositeBuffer putFloat(float value) {
+		return putInt(Float.floatToRawIntBits(value));
+	}
+
+	public CompositeBuffer putDouble(double value) {
+		return putLong(Double.doubleToRawLongBits(value));
+	}
+
+	/**
+	 * Writes chars from an array
+	 * @param src The array to write chars from
+	 * @param offset The index of the first char to write
+	 * @param length The number of chars to write
+	 * @return This buffer
+	 */
+	public CompositeBuffer putChars(char[] src, int offset, int length) {
+		copy = null;
+		int size = length * Character.BYTES;
+		ByteBuffer cur = contiguous(size);
+		if(cur != null) {
+			cur.asCharBuffer().put(src, offset, length);
+			cur.position(cur.position() + size);
+		} else {
+			for(int i = 0; i < length; i++) {
+				putChar(src[offset + i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the fragment holding all of the remaining bytes, for handing to code that needs a single ByteBuffer.
+	 * The fragment's position is this buffer's position, so anything read or written through it advances this buffer too
+	 * @return The fragment, or null if the remaining bytes are spread across more than one fragment
+	 */
+	ByteBuffer contiguousRemaining() {
+		advance();
+		ByteBuffer cur = fragments[index];
+		if(cur.remaining() != remaining()) {
+			return null;
+		}
+		// the fragment may be written through, so any copy of it can no longer be trusted
+		copy = null;
+		return cur;
+	}
+
+	/**
+	 * Gets a ByteBuffer holding a copy of the remaining bytes without changing the position.
+	 * This is the fallback for code that needs a single ByteBuffer when the data is fragmented.
+	 * The copy is made once and shared by later calls until something is written, so reading several such fields costs a single copy
+	 */
+	ByteBuffer copyRemaining() {
+		int start = position();
+		if(copy == null || start < copyStart) {
+			byte[] bytes = new byte[limit - start];
+			get(bytes);
+			position(start);
+			copy = ByteBuffer.wrap(bytes);
+			copyStart = start;
+		}
+		ByteBuffer view = copy.duplicate();
+		view.position(start - copyStart);
+		return view.slice().order(order);
+	}
+
+	/**
+	 * Gets an empty ByteBuffer large enough for the remaining bytes, for code that needs a single ByteBuffer to write into when the data is fragmented.
+	 * The remaining size only shrinks as data is written, so the buffer is allocated once and reused by later calls
+	 */
+	ByteBuffer adapterOutput() {
+		int size = remaining();
+		if(adapterOutput == null || adapterOutput.capacity() < size) {
+			adapterOutput = ByteBuffer.allocate(size);
+		}
+		adapterOutput.clear();
+		adapterOutput.limit(size);
+		return adapterOutput.order(order);
+	}
+
+	/**
+	 * Adds the bytes from start to end to a checksum without changing the position
+	 */
+	void update(Checksum checksum, int start, int end) {
+		for(int i = 0; i < fragments.length && start < end; i++) {
+			int fragEnd = bases[i] + lengths[i];
+			if(start >= fragEnd) continue;
+
+			int from = starts[i] + start - bases[i];
+			int count = Math.min(end, fragEnd) - start;
+			ByteBuffer fragment = fragments[i];
+			if(fragment.hasArray()) {
+				checksum.update(fragment.array(), fragment.arrayOffset() + from, count);
+			} else {
+				ByteBuffer range = fragment.duplicate();
+				range.limit(from + count);
+				range.position(from);
+				checksum.update(range);
+			}
+			start += count;
+		}
+	}
+
+	/** moves past any fragments that have been used up */
+	private void advance() {
+		while(index < fragments.length - 1 && !fragments[index].hasRemaining()) {
+			index++;
+		}
+	}
+
+	/** gets the current fragment if the next size bytes are all within it */
+	private ByteBuffer contiguous(int size) {
+		advance();
+		ByteBuffer cur = fragments[index];
+		return cur.remaining() >= size ? cur : null;
+	}
+
+	/** assembles a value that straddles fragments */
+	private ByteBuffer gather(int size) {
+		if(size > remaining()) {
+			throw new BufferUnderflowException();
+		}
+		scratch.clear();
+		for(int i = 0; i < size; i++) {
+			scratch.put(get());
+		}
+		scratch.flip();
+		return scratch;
+	}
+
+	/** splits a value in the scratch buffer across fragments */
+	private void scatter() {
+		scratch.flip();
+		if(scratch.remaining() > remaining()) {
+			throw new BufferOverflowException();
+		}
+		while(scratch.hasRemaining()) {
+			put(scratch.get());
+		}
+	}
+}
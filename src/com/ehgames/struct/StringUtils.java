@@ -15,7 +15,62 @@ public final class StringUtils {
 	public static String readFourCC(ByteBuffer buf) {
 		return readNullTerminatedString(buf, BasicCharset.ASCII, 4, 4);
 	}
-	
+
+	/**
+	 * Reads a four character code(FourCC) packed into an int without creating a String.
+	 * The first character is stored in the most significant byte regardless of the buffer's byte order,
+	 * so the result can be compared directly against values from {@link #fourCC(String)}
+	 * @param buf The ByteBuffer to read characters from
+	 * @return The FourCC that was read as a packed int
+	 */
+	public static int readFourCCInt(ByteBuffer buf) {
+		int pos = buf.position();
+		int value = getFourCCInt(buf, pos);
+		buf.position(pos + 4);
+		return value;
+	}
+
+	/**
+	 * Gets a four character code(FourCC) packed into an int at an absolute index without changing the buffer's position
+	 * @param buf The ByteBuffer to read characters from
+	 * @param index The index of the first character
+	 * @return The FourCC at the index as a packed int
+	 */
+	public static int getFourCCInt(ByteBuffer buf, int index) {
+		return (buf.get(index) & 0xFF) << 24
+				| (buf.get(index + 1) & 0xFF) << 16
+				| (buf.get(index + 2) & 0xFF) << 8
+				| (buf.get(index + 3) & 0xFF);
+	}
+
+	/**
+	 * Packs a four character code(FourCC) into an int for comparison against {@link #readFourCCInt(ByteBuffer)}.
+	 * Codes shorter than four characters are padded with spaces
+	 * @param code The FourCC as an ASCII String
+	 * @return The FourCC as a packed int
+	 */
+	public static int fourCC(String code) {
+		int value = 0;
+		for(int i = 0; i < 4; i++) {
+			char c = i < code.length() ? code.charAt(i) : ' ';
+			value = (value << 8) | (c & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Converts a packed four character code(FourCC) back into a String, generally for debugging or error messages
+	 * @param code The FourCC as a packed int
+	 * @return The FourCC as a String
+	 */
+	public static String fourCCToString(int code) {
+		char[] chars = new char[4];
+		for(int i = 0; i < 4; i++) {
+			chars[i] = (char) ((code >>> (24 - i * 8)) & 0xFF);
+		}
+		return new String(chars);
+	}
+
 	/**
 	 * Reads a null terminated ASCII String of any length
 	 * @param buf The ByteBuffer to read characters from
@@ -61,6 +116,10 @@ public final class StringUtils {
 	 * @return The String that was read
 	 */
 	public static String readNullTerminatedString(ByteBuffer buf, BasicCharset charset, int minLength, int maxLength) {
+		return readNullTerminatedString(new CompositeBuffer(buf), charset, minLength, maxLength);
+	}
+	
+	static String readNullTerminatedString(CompositeBuffer buf, BasicCharset charset, int minLength, int maxLength) {
 		// validate variables
 		boolean utf16 = charset == BasicCharset.UTF16;
 		if(minLength < 0) {
@@ -0,0 +1,344 @@
+package com.ehgames.struct;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.ehgames.struct.adapters.Checksum;
+import com.ehgames.struct.adapters.StructAdapter;
+
+/**
+ * The encoded layout of a class, used to find and update single fields of a record inside a buffer without reading or writing the whole record.
+ * Fields that come before any variable-length data have fixed offsets and are found without touching the buffer.
+ * Fields after variable-length data are found by skipping over the fields before them, reading only the lengths where possible.
+ * <p>
+ * Updates must not change the encoded size of a field, since that would move everything after it.
+ * Any {@link Checksum} fields covering an updated field are recomputed.
+ * Layouts are cached per class and may be shared between threads, though concurrent updates of the same record are not coordinated.
+ */
+public final class StructLayout<T> {
+	private static final ClassValue<StructLayout<?>> LAYOUTS = new ClassValue<StructLayout<?>>() {
+		@Override
+		protected StructLayout<?> computeValue(Class<?> type) {
+			return new StructLayout<>(type);
+		}
+	};
+
+	private final Class<T> cls;
+	/** encoded fields in the order they are read, starting with the class furthest up the hierarchy */
+	private final Field[] fields;
+	/** encoded size of each field, or -1 if it depends on the data */
+	private final int[] sizes;
+	/** offset of each field and of the end of the record, valid up to and including firstVariable */
+	private final int[] fixedOffsets;
+	private final int firstVariable;
+	/** for checksum fields, the index of the first field covered, or -1 if the range starts at the beginning of the record */
+	private final int[] checksumStarts;
+
+	/**
+	 * Gets the layout for a class
+	 * @param cls The class of the records
+	 * @return The layout of the class
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> StructLayout<T> of(Class<T> cls) {
+		return (StructLayout<T>) LAYOUTS.get(cls);
+	}
+
+	private StructLayout(Class<T> cls) {
+		this.cls = cls;
+
+		List<Field> encoded = new ArrayList<>();
+		collectFields(cls, encoded);
+		fields = encoded.toArray(new Field[0]);
+		sizes = new int[fields.length];
+		fixedOffsets = new int[fields.length + 1];
+		checksumStarts = new int[fields.length];
+
+		T prototype = null;
+		int offset = 0;
+		int variable = fields.length;
+		for(int i = 0; i < fields.length; i++) {
+			Field f = fields[i];
+			if(prototype == null && f.getType().isArray() && Modifier.isFinal(f.getModifiers())) {
+				// fixed size arrays get their length from the object's initializer
+				prototype = StructUtils.createObj(cls);
+			}
+			sizes[i] = fieldSize(f, prototype);
+			checksumStarts[i] = findChecksumStart(i);
+
+			if(variable == fields.length) {
+				fixedOffsets[i] = offset;
+				if(sizes[i] < 0) {
+					variable = i;
+				} else {
+					offset += sizes[i];
+				}
+			}
+		}
+		if(variable == fields.length) {
+			fixedOffsets[variable] = offset;
+		}
+		firstVariable = variable;
+	}
+
+	private static void collectFields(Class<?> cls, List<Field> encoded) {
+		Class<?> superclass = cls.getSuperclass();
+		if(superclass != null & superclass != Object.class) {
+			collectFields(superclass, encoded);
+		}
+		for(Field f : cls.getDeclaredFields()) {
+			int modifiers = f.getModifiers();
+			if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+				// these Field objects are shared by every thread using the layout, so they are made accessible once and left that way
+				f.setAccessible(true);
+				encoded.add(f);
+			}
+		}
+	}
+
+	private int findChecksumStart(int index) {
+		Checksum checksum = fields[index].getAnnotation(Checksum.class);
+		if(checksum == null || checksum.from().isEmpty()) {
+			return -1;
+		}
+		Class<?> declaring = fields[index].getDeclaringClass();
+		for(int i = 0; i < index; i++) {
+			if(fields[i].getDeclaringClass() == declaring && fields[i].getName().equals(checksum.from())) {
+				return i;
+			}
+		}
+		throw StructUtils.checksumRangeError(fields[index], checksum.from());
+	}
+
+	private static int fieldSize(Field f, Object prototype) {
+		if(f.getAnnotation(StructAdapter.class) != null) {
+			return -1;
+		}
+		Class<?> type = f.getType();
+		if(type.isPrimitive()) {
+			return primitiveSize(type);
+		}
+		if(type.isEnum()) {
+			return StructUtils.getSizeType(f);
+		}
+		if(type.isArray()) {
+			if(prototype == null || !Modifier.isFinal(f.getModifiers())) {
+				return -1;
+			}
+			Object array;
+			try {
+				array = f.get(prototype);
+			} catch(ReflectiveOperationException roe) {
+				roe.printStackTrace();
+				return -1;
+			}
+			int elemSize = elementSize(type.getComponentType());
+			return array == null || elemSize < 0 ? -1 : Array.getLength(array) * elemSize;
+		}
+		if(type == String.class) {
+			return -1;
+		}
+		return of(type).fixedSize();
+	}
+
+	private static int elementSize(Class<?> type) {
+		if(type.isPrimitive()) {
+			return primitiveSize(type);
+		}
+		if(type.isArray() || type.isEnum() || type == String.class) {
+			return -1;
+		}
+		return of(type).fixedSize();
+	}
+
+	private static int primitiveSize(Class<?> type) {
+		if(type == Long.TYPE || type == Double.TYPE) return 8;
+		if(type == Integer.TYPE || type == Float.TYPE) return 4;
+		if(type == Short.TYPE || type == Character.TYPE) return 2;
+		return 1;
+	}
+
+	/**
+	 * @return The encoded size of every record of this class, or -1 if it contains variable-length data
+	 */
+	public int fixedSize() {
+		return firstVariable == fields.length ? fixedOffsets[fields.length] : -1;
+	}
+
+	/**
+	 * Finds the position of a field within an encoded record
+	 * @param data The buffer containing the record
+	 * @param base The absolute index in the buffer where the record starts
+	 * @param fieldName The name of the field
+	 * @return The absolute index in the buffer where the field starts
+	 */
+	public int offsetOf(ByteBuffer data, int base, String fieldName) {
+		int index = indexOf(fieldName);
+		return locate(data, base, index)[index];
+	}
+
+	/**
+	 * Finds the encoded size of a record
+	 * @param data The buffer containing the record
+	 * @param base The absolute index in the buffer where the record starts
+	 * @return The size of the record in bytes
+	 */
+	public int sizeOf(ByteBuffer data, int base) {
+		return locate(data, base, fields.length)[fields.length] - base;
+	}
+
+	/**
+	 * Writes only the named fields of an object into a record that has already been encoded, leaving the rest of the record untouched.
+	 * The position of the buffer is not changed
+	 * @param data The buffer containing the record
+	 * @param base The absolute index in the buffer where the record starts
+	 * @param obj The object holding the new values
+	 * @param fieldNames The names of the fields to write
+	 * @throws IllegalArgumentException if a field does not exist or its new value has a different encoded size,
+	 * 	in which case nothing is written
+	 */
+	public void update(ByteBuffer data, int base, T obj, String... fieldNames) {
+		BitSet changed = new BitSet(fields.length);
+		for(String name : fieldNames) {
+			changed.set(indexOf(name));
+		}
+		update(data, base, obj, changed);
+	}
+
+	void update(ByteBuffer data, int base, T obj, BitSet changed) {
+		if(changed.isEmpty()) {
+			return;
+		}
+
+		// find the checksums to refresh, including ones covering checksums that are themselves refreshed
+		BitSet covered = (BitSet) changed.clone();
+		BitSet checksums = new BitSet(fields.length);
+		int through = changed.length();
+		for(int i = changed.nextSetBit(0); i < fields.length; i++) {
+			if(fields[i].getAnnotation(Checksum.class) != null && covers(i, covered)) {
+				checksums.set(i);
+				covered.set(i);
+				through = Math.max(through, i + 1);
+			}
+		}
+		int[] offsets = locate(data, base, through);
+
+		// encode and check every field before writing any of them, so a failure leaves the record untouched
+		ByteBuffer[] encoded = new ByteBuffer[fields.length];
+		for(int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+			encoded[i] = encodeField(data.order(), offsets, obj, i);
+		}
+		ByteBuffer view = data.duplicate();
+		for(int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+			view.position(offsets[i]);
+			view.put(encoded[i]);
+		}
+
+		// in order, so a checksum covering another one sees its new value
+		for(int i = checksums.nextSetBit(0); i >= 0; i = checksums.nextSetBit(i + 1)) {
+			int start = checksumStarts[i] < 0 ? base : offsets[checksumStarts[i]];
+			long value = StructUtils.computeChecksum(fields[i].getAnnotation(Checksum.class).type(), absolute(data), start, offsets[i]);
+			if(fields[i].getType() == Integer.TYPE) {
+				data.putInt(offsets[i], (int) value);
+			} else if(fields[i].getType() == Long.TYPE) {
+				data.putLong(offsets[i], value);
+			}
+		}
+	}
+
+	int indexOf(String fieldName) {
+		for(int i = fields.length - 1; i >= 0; i--) {
+			if(fields[i].getName().equals(fieldName)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(cls.getName() + " has no encoded field named " + fieldName);
+	}
+
+	Field field(int index) {
+		return fields[index];
+	}
+
+	private boolean covers(int checksumIndex, BitSet changed) {
+		int first = changed.nextSetBit(Math.max(checksumStarts[checksumIndex], 0));
+		return first >= 0 && first < checksumIndex;
+	}
+
+	private ByteBuffer encodeField(ByteOrder order, int[] offsets, T obj, int i) {
+		int size = offsets[i + 1] - offsets[i];
+		ByteBuffer encoded = ByteBuffer.allocate(size).order(order);
+		try {
+			StructWriter.writeAccessibleField(new CompositeBuffer(encoded), fields[i], obj);
+		} catch(BufferOverflowException | IllegalArgumentException e) {
+			throw new IllegalArgumentException("New value of " + fields[i].getName() + " is larger than the encoded value", e);
+		} catch(ReflectiveOperationException roe) {
+			throw new IllegalStateException("Unable to write " + fields[i].getName() + " of " + cls.getName(), roe);
+		}
+		if(encoded.hasRemaining()) {
+			throw new IllegalArgumentException("New value of " + fields[i].getName() + " is smaller than the encoded value");
+		}
+		encoded.flip();
+		return encoded;
+	}
+
+	/**
+	 * Finds the absolute offsets of the fields of a record, up to and including the field at index through.
+	 * An index equal to the number of fields gives the end of the record
+	 */
+	private int[] locate(ByteBuffer data, int base, int through) {
+		int[] offsets = new int[fields.length + 1];
+		int first = Math.min(firstVariable, through);
+		for(int i = 0; i <= first; i++) {
+			offsets[i] = base + fixedOffsets[i];
+		}
+
+		CompositeBuffer buf = null;
+		T scratch = null;
+		int pos = offsets[first];
+		try {
+			for(int i = first; i < through; i++) {
+				if(sizes[i] >= 0) {
+					pos += sizes[i];
+				} else {
+					if(buf == null) {
+						buf = absolute(data);
+					}
+					buf.position(pos);
+					Field f = fields[i];
+					Class<?> elemType = f.getType().getComponentType();
+					if(elemType != null && elemType.isPrimitive() && !Modifier.isFinal(f.getModifiers())
+							&& f.getAnnotation(StructAdapter.class) == null) {
+						// primitive arrays can be skipped using their length alone
+						int length = StructReader.getSizedField(buf, f);
+						buf.position(buf.position() + length * primitiveSize(elemType));
+					} else {
+						// anything else is read into a throwaway object to find where it ends
+						if(scratch == null) {
+							scratch = StructUtils.createObj(cls);
+						}
+						StructReader.readAccessibleField(buf, f, scratch);
+					}
+					pos = buf.position();
+				}
+				offsets[i + 1] = pos;
+			}
+		} catch(ReflectiveOperationException roe) {
+			throw new IllegalStateException("Unable to skip over fields of " + cls.getName(), roe);
+		}
+		return offsets;
+	}
+
+	/** wraps the whole buffer so that positions are absolute indices */
+	private static CompositeBuffer absolute(ByteBuffer data) {
+		ByteBuffer view = data.duplicate().order(data.order());
+		view.position(0);
+		return new CompositeBuffer(view);
+	}
+}
@@ -8,6 +8,9 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import com.ehgames.struct.adapters.BasicCharset;
+import com.ehgames.struct.adapters.Checksum;
+import com.ehgames.struct.adapters.ChecksumException;
+import com.ehgames.struct.adapters.CompositeTypeAdapter;
 import com.ehgames.struct.adapters.StringAdapter;
 import com.ehgames.struct.adapters.StructAdapter;
 import com.ehgames.struct.adapters.StructTypeAdapter;
@@ -22,6 +25,44 @@ public class StructReader {
 	}
 	
 	public static <T> T read(ByteBuffer data, Class<T> cls) {
+		return read(new CompositeBuffer(data), cls);
+	}
+	
+	public static <T> void read(ByteBuffer data, Class<? extends T> cls, T obj) {
+		read(new CompositeBuffer(data), cls, obj);
+	}
+	
+	/**
+	 * Reads an object from a message split across several ByteBuffers without copying them into one buffer
+	 * @see CompositeBuffer
+	 */
+	public static <T> T read(ByteBuffer[] data, Class<T> cls) {
+		return read(new CompositeBuffer(data), cls);
+	}
+	
+	/**
+	 * Reads into an existing object from a message split across several ByteBuffers without copying them into one buffer
+	 * @see CompositeBuffer
+	 */
+	public static <T> void read(ByteBuffer[] data, T obj) {
+		read(new CompositeBuffer(data), obj);
+	}
+	
+	/**
+	 * Reads into an existing object from a message split across several ByteBuffers without copying them into one buffer
+	 * @see CompositeBuffer
+	 */
+	public static <T> void read(ByteBuffer[] data, Class<? extends T> cls, T obj) {
+		read(new CompositeBuffer(data), cls, obj);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> void read(CompositeBuffer data, T obj) {
+		Class<T> cls = (Class<T>) obj.getClass();
+		read(data, cls, obj);
+	}
+	
+	public static <T> T read(CompositeBuffer data, Class<T> cls) {
 		T obj = StructUtils.createObj(cls);
 		if(obj != null) {
 			read(data, cls, obj);
@@ -29,77 +70,139 @@ public class StructReader {
 		return obj;
 	}
 	
-	public static <T> void read(ByteBuffer data, Class<? extends T> cls, T obj) {
+	public static <T> void read(CompositeBuffer data, Class<? extends T> cls, T obj) {
 		if(cls.isArray()) {
 			readArray(data, cls.getComponentType(), null, obj);
 			return;
 		}
 		
-		readNonArrayContainer(data, cls, obj);
+		readNonArrayContainer(data, cls, obj, data.position());
 	}
 	
-	private static <T> void readNonArrayContainer(ByteBuffer data, Class<? extends T> cls, T obj) {
+	private static <T> void readNonArrayContainer(CompositeBuffer data, Class<? extends T> cls, T obj, int objStart) {
 		Class<?> superclass = cls.getSuperclass();
 		if(superclass != null & superclass != Object.class) {
-			readNonArrayContainer(data, superclass, obj);
+			readNonArrayContainer(data, superclass, obj, objStart);
 		}
 			
 		Field[] fields = cls.getDeclaredFields();
+		int[] starts = new int[fields.length];
 		try {
-			for(Field f : fields) {
-				readSingleField(data, f, obj);
+			for(int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				starts[i] = data.position();
+				Checksum checksum = f.getAnnotation(Checksum.class);
+				if(checksum != null) {
+					int start = StructUtils.getChecksumStart(checksum, fields, starts, i, objStart);
+					readChecksum(data, f, obj, checksum, start);
+				} else {
+					readSingleField(data, f, obj);
+				}
 			}
 		} catch(ReflectiveOperationException roe) {
 			roe.printStackTrace();
 		}
 	}
 	
-	private static void readSingleField(ByteBuffer data, Field f, Object obj) throws ReflectiveOperationException {
+	private static void readChecksum(CompositeBuffer data, Field f, Object obj, Checksum checksum, int start) throws ReflectiveOperationException {
 		int modifiers = f.getModifiers();
+		Class<?> type = f.getType();
 		if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
 			return;
 		}
+		if(type != Integer.TYPE && type != Long.TYPE) {
+			System.err.println("Checksum field " + f.getName() + " must be an int or long");
+			readSingleField(data, f, obj);
+			return;
+		}
 		
+		// computed before reading so the range ends at the start of the checksum
+		long actual = StructUtils.computeChecksum(checksum.type(), data, start, data.position());
+		readSingleField(data, f, obj);
+		
+		long expected;
 		f.setAccessible(true);
 		try {
-			StructAdapter annotation = f.getAnnotation(StructAdapter.class);
-			if(annotation != null) {
-				StructTypeAdapter<?> adapter = StructUtils.createObj(annotation.value());
-				Object value = adapter.read(data, obj);
-				f.set(obj, value);
-			} else {
-				Class<?> type = f.getType();
-				if(type.isPrimitive()) {
-					Object val = readPrimitive(data, type);
-					f.set(obj, val);
-					
-				} else if(type.isArray()) {
-					readArray(data, type, obj, f);
-					
-				} else if(type.isEnum()) {
-					readEnum(data, type, obj, f);
-					
-				} else if(type == String.class) {
-					readString(data, obj, f);
-					
-				} else {
-					Object value = read(data, type);
-					f.set(obj, value);
-				}
-			}
+			expected = type == Integer.TYPE ? f.getInt(obj) & 0xFFFFFFFFL : f.getLong(obj);
 		} finally {
 			f.setAccessible(false);
 		}
+		if(expected != actual) {
+			throw new ChecksumException(f.getName(), expected, actual);
+		}
+	}
+	
+	private static void readSingleField(CompositeBuffer data, Field f, Object obj) throws ReflectiveOperationException {
+		int modifiers = f.getModifiers();
+		if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+			return;
+		}
+		
+		f.setAccessible(true);
+		try {
+			readAccessibleField(data, f, obj);
+		} finally {
+			f.setAccessible(false);
+		}
+	}
+	
+	/**
+	 * Reads a field that has already been made accessible, without changing its accessibility
+	 */
+	static void readAccessibleField(CompositeBuffer data, Field f, Object obj) throws ReflectiveOperationException {
+		StructAdapter annotation = f.getAnnotation(StructAdapter.class);
+		if(annotation != null) {
+			Object value = readWithAdapter(data, annotation, obj);
+			f.set(obj, value);
+		} else {
+			Class<?> type = f.getType();
+			if(type.isPrimitive()) {
+				Object val = readPrimitive(data, type);
+				f.set(obj, val);
+				
+			} else if(type.isArray()) {
+				readArray(data, type, obj, f);
+				
+			} else if(type.isEnum()) {
+				readEnum(data, type, obj, f);
+				
+			} else if(type == String.class) {
+				readString(data, obj, f);
+				
+			} else {
+				Object value = read(data, type);
+				f.set(obj, value);
+			}
+		}
+	}
+	
+	private static Object readWithAdapter(CompositeBuffer data, StructAdapter annotation, Object obj) {
+		StructTypeAdapter<?> adapter = StructUtils.createObj(annotation.value());
+		if(adapter instanceof CompositeTypeAdapter) {
+			return ((CompositeTypeAdapter<?>) adapter).read(data, obj);
+		}
+		
+		ByteBuffer buf = data.contiguousRemaining();
+		if(buf != null) {
+			return adapter.read(buf, obj);
+		}
+		
+		// other adapters only understand a single ByteBuffer, so fragmented data has to be copied for them
+		int start = data.position();
+		buf = data.copyRemaining();
+		Object value = adapter.read(buf, obj);
+		data.position(start + buf.position());
+		return value;
 	}
 	
-	private static int getSizedField(ByteBuffer data, Field f) {
+	static int getSizedField(CompositeBuffer data, Field f) {
 		int size = StructUtils.getSizeType(f);
 		if(size == 1) return data.get() & 0xFF;
 		if(size == 2) return data.getShort() & 0xFFFF;
 		return data.getInt();
 	}
 	
-	private static void readEnum(ByteBuffer data, Class<?> type, Object obj, Field f) throws ReflectiveOperationException {
+	private static void readEnum(CompositeBuffer data, Class<?> type, Object obj, Field f) throws ReflectiveOperationException {
 		int value = getSizedField(data, f);
 		Object[] enumVals = type.getEnumConstants();
 		if(value < 0 || value >= enumVals.length) {
@@ -109,12 +212,12 @@ public class StructReader {
 		}
 	}
 	
-	private static void readString(ByteBuffer data, Object obj, Field f) throws ReflectiveOperationException {
+	private static void readString(CompositeBuffer data, Object obj, Field f) throws ReflectiveOperationException {
 		String str = readString(data, f);
 		f.set(obj, str);
 	}
 	
-	private static String readString(ByteBuffer data, Field f) {
+	private static String readString(CompositeBuffer data, Field f) {
 		// collect the variables
 		BasicCharset bchar = BasicCharset.ASCII;
 		int minLength = 0;
@@ -156,10 +259,7 @@ public class StructReader {
 			
 			if(utf16) {
 				char[] buf = new char[length];
-				data.asCharBuffer().get(buf);
-				// we need to make sure position is accurate
-				// at least for reading the next variable, but also for alignment
-				data.position(start + length * Character.BYTES);
+				data.getChars(buf);
 				str = new String(buf);
 			} else {
 				byte[] buf = new byte[length];
@@ -182,7 +282,7 @@ public class StructReader {
 		return str;
 	}
 	
-	private static Object readPrimitive(ByteBuffer data, Class<?> type) {
+	private static Object readPrimitive(CompositeBuffer data, Class<?> type) {
 		if(type == Integer.TYPE) return data.getInt();
 		if(type == Long.TYPE) return data.getLong();
 		if(type == Short.TYPE) return data.getShort();
@@ -194,7 +294,7 @@ public class StructReader {
 		return null;
 	}
 	
-	private static void readArray(ByteBuffer data, Class<?> type, Object container, Object array) {
+	private static void readArray(CompositeBuffer data, Class<?> type, Object container, Object array) {
 		int length = Array.getLength(array);
 		
 		// FIXME this will almost certainly break with arrays of anything other than primitives and basic objects
@@ -211,7 +311,7 @@ public class StructReader {
 		}
 	}
 	
-	private static void readArray(ByteBuffer data, Class<?> type, Object obj, Field f) throws ReflectiveOperationException {
+	private static void readArray(CompositeBuffer data, Class<?> type, Object obj, Field f) throws ReflectiveOperationException {
 		Object array;
 		Class<?> elemClass = type.getComponentType();
 			
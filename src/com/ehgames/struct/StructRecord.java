@@ -0,0 +1,103 @@
+package com.ehgames.struct;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * An object paired with the record it was read from, which remembers which fields have changed.
+ * {@link #flush()} writes only the changed fields back into the record using {@link StructLayout},
+ * so modifying a few fields of a large memory-mapped table does not rewrite whole records.
+ */
+public final class StructRecord<T> {
+	private final ByteBuffer data;
+	private final int base;
+	private final T obj;
+	private final StructLayout<T> layout;
+	private final BitSet dirty = new BitSet();
+
+	/**
+	 * Reads a record without changing the position of the buffer
+	 * @param data The buffer containing the record
+	 * @param base The absolute index in the buffer where the record starts
+	 * @param cls The type to read
+	 * @return The record, or null if the object could not be created
+	 */
+	public static <T> StructRecord<T> read(ByteBuffer data, int base, Class<T> cls) {
+		ByteBuffer view = data.duplicate().order(data.order());
+		view.position(base);
+		T obj = StructReader.read(view, cls);
+		return obj == null ? null : new StructRecord<>(data, base, obj);
+	}
+
+	/**
+	 * Pairs an object with the record it was read from
+	 * @param data The buffer containing the record
+	 * @param base The absolute index in the buffer where the record starts
+	 * @param obj The object that was read from the record
+	 */
+	@SuppressWarnings("unchecked")
+	public StructRecord(ByteBuffer data, int base, T obj) {
+		this.data = data;
+		this.base = base;
+		this.obj = obj;
+		this.layout = StructLayout.of((Class<T>) obj.getClass());
+	}
+
+	/**
+	 * @return The object holding the record's values.
+	 * 	Fields changed directly on it must be marked with {@link #markDirty(String)} to be written
+	 */
+	public T get() {
+		return obj;
+	}
+
+	/**
+	 * @return The absolute index in the buffer where the record starts
+	 */
+	public int base() {
+		return base;
+	}
+
+	/**
+	 * Sets the value of a field and marks it as changed
+	 * @param fieldName The name of the field
+	 * @param value The new value
+	 */
+	public void set(String fieldName, Object value) {
+		// the layout's fields are already accessible and shared, so their accessibility is left alone
+		Field f = layout.field(layout.indexOf(fieldName));
+		try {
+			f.set(obj, value);
+		} catch(ReflectiveOperationException roe) {
+			roe.printStackTrace();
+			return;
+		}
+		markDirty(fieldName);
+	}
+
+	/**
+	 * Marks a field as changed so it is written on the next {@link #flush()}
+	 * @param fieldName The name of the field
+	 */
+	public void markDirty(String fieldName) {
+		dirty.set(layout.indexOf(fieldName));
+	}
+
+	/**
+	 * @return true if any fields have changed since the last flush
+	 */
+	public boolean isDirty() {
+		return !dirty.isEmpty();
+	}
+
+	/**
+	 * Writes the changed fields into the record, along with any checksums covering them.
+	 * If this throws, nothing is written and the fields remain marked as changed
+	 * @throws IllegalArgumentException if a changed field's encoded size no longer matches the record
+	 */
+	public void flush() {
+		layout.update(data, base, obj, dirty);
+		dirty.clear();
+	}
+}
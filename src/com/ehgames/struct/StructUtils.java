@@ -3,7 +3,12 @@ package com.ehgames.struct;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.Optional;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
 
+import com.ehgames.struct.adapters.Checksum;
+import com.ehgames.struct.adapters.ChecksumType;
 import com.ehgames.struct.adapters.LengthSize;
 
 final class StructUtils {
@@ -34,5 +39,47 @@ final class StructUtils {
 		return value;
 	}
 	
+	/**
+	 * Finds where the range covered by a checksum field begins
+	 * @param checksum The annotation on the checksum field
+	 * @param fields The fields declared in the same class as the checksum field
+	 * @param starts The positions each field started at, valid up to the checksum field
+	 * @param index The index of the checksum field in fields
+	 * @param objStart The position the object started at
+	 * @throws IllegalArgumentException if the field named by the annotation is not declared before the checksum field
+	 */
+	static int getChecksumStart(Checksum checksum, Field[] fields, int[] starts, int index, int objStart) {
+		String from = checksum.from();
+		if(from.isEmpty()) {
+			return objStart;
+		}
+		for(int i = 0; i < index; i++) {
+			if(fields[i].getName().equals(from)) {
+				return starts[i];
+			}
+		}
+		throw checksumRangeError(fields[index], from);
+	}
+	
+	static IllegalArgumentException checksumRangeError(Field checksumField, String from) {
+		return new IllegalArgumentException("Checksum field " + checksumField.getName() + " of " + checksumField.getDeclaringClass().getName()
+				+ " covers " + from + ", which is not declared before it in the same class");
+	}
+
+	static long computeChecksum(ChecksumType type, CompositeBuffer data, int start, int end) {
+		java.util.zip.Checksum checksum;
+		if(type == ChecksumType.CRC32) {
+			checksum = new CRC32();
+		} else if(type == ChecksumType.ADLER32) {
+			checksum = new Adler32();
+		} else {
+			checksum = new CRC32C();
+		}
+		
+		// the bytes were just processed, so this pass over them should be coming from cache
+		data.update(checksum, start, end);
+		return checksum.getValue();
+	}
+	
 	private StructUtils() {}
 }
@@ -4,11 +4,12 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 import com.ehgames.struct.adapters.BasicCharset;
+import com.ehgames.struct.adapters.Checksum;
+import com.ehgames.struct.adapters.CompositeTypeAdapter;
 import com.ehgames.struct.adapters.StringAdapter;
 import com.ehgames.struct.adapters.StructAdapter;
 import com.ehgames.struct.adapters.StructTypeAdapter;
@@ -21,30 +22,85 @@ public class StructWriter {
 	}
 	
 	public static <T> void write(ByteBuffer data, Class<? extends T> cls, T obj) {
+		write(new CompositeBuffer(data), cls, obj);
+	}
+	
+	/**
+	 * Writes an object across several ByteBuffers, continuing into the next buffer whenever one fills up
+	 * @see CompositeBuffer
+	 */
+	public static <T> void write(ByteBuffer[] data, T obj) {
+		write(new CompositeBuffer(data), obj);
+	}
+	
+	/**
+	 * Writes an object across several ByteBuffers, continuing into the next buffer whenever one fills up
+	 * @see CompositeBuffer
+	 */
+	public static <T> void write(ByteBuffer[] data, Class<? extends T> cls, T obj) {
+		write(new CompositeBuffer(data), cls, obj);
+	}
+	
+	@SuppressWarnings("unchecked")
+	public static <T> void write(CompositeBuffer data, T obj) {
+		Class<T> cls = (Class<T>) obj.getClass();
+		write(data, cls, obj);
+	}
+	
+	public static <T> void write(CompositeBuffer data, Class<? extends T> cls, T obj) {
 		if(cls.isArray()) {
 			writeArray(data, obj, cls, null);
 		} else {
-			writeNonArrayContainer(data, cls, obj);
+			writeNonArrayContainer(data, cls, obj, data.position());
 		}
 	}
 
-	private static <T> void writeNonArrayContainer(ByteBuffer data, Class<? extends T> cls, T obj) {
+	private static <T> void writeNonArrayContainer(CompositeBuffer data, Class<? extends T> cls, T obj, int objStart) {
 		Class<?> superclass = cls.getSuperclass();
 		if(superclass != null & superclass != Object.class) {
-			writeNonArrayContainer(data, superclass, obj);
+			writeNonArrayContainer(data, superclass, obj, objStart);
 		}
 			
 		Field[] fields = cls.getDeclaredFields();
+		int[] starts = new int[fields.length];
 		try {
-			for(Field f : fields) {
-				writeSingleField(data, f, obj);
+			for(int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				starts[i] = data.position();
+				Checksum checksum = f.getAnnotation(Checksum.class);
+				if(checksum != null) {
+					int start = StructUtils.getChecksumStart(checksum, fields, starts, i, objStart);
+					writeChecksum(data, f, obj, checksum, start);
+				} else {
+					writeSingleField(data, f, obj);
+				}
 			}
 		} catch(ReflectiveOperationException roe) {
 			roe.printStackTrace();
 		}
 	}
 	
-	private static void writeSingleField(ByteBuffer data, Field f, Object obj) throws ReflectiveOperationException {
+	private static void writeChecksum(CompositeBuffer data, Field f, Object obj, Checksum checksum, int start) throws ReflectiveOperationException {
+		int modifiers = f.getModifiers();
+		Class<?> type = f.getType();
+		if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+			return;
+		}
+		if(type != Integer.TYPE && type != Long.TYPE) {
+			System.err.println("Checksum field " + f.getName() + " must be an int or long");
+			writeSingleField(data, f, obj);
+			return;
+		}
+		
+		long value = StructUtils.computeChecksum(checksum.type(), data, start, data.position());
+		if(type == Integer.TYPE) {
+			data.putInt((int) value);
+		} else {
+			data.putLong(value);
+		}
+	}
+	
+	private static void writeSingleField(CompositeBuffer data, Field f, Object obj) throws ReflectiveOperationException {
 		int modifiers = f.getModifiers();
 		if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
 			return;
@@ -52,41 +108,63 @@ public class StructWriter {
 		
 		f.setAccessible(true);
 		try {
-			Object value = f.get(obj);
-			
-			StructAdapter annotation = f.getAnnotation(StructAdapter.class);
-			if(annotation != null) {
-				writeWithAdapter(data, annotation, value, obj);
-			} else {
-				Class<?> type = f.getType();
-				if(type.isPrimitive()) {
-					writePrimitive(data, value, type);
-					
-				} else if(type.isArray()) {
-					writeArray(data, value, type, f);
-					
-				} else if(type.isEnum()) {
-					writeEnum(data, value, type, f);
-					
-				} else if(type == String.class) {
-					writeString(data, value.toString(), f);
-					
-				} else {
-					write(data, type, value);
-				}
-			}
+			writeAccessibleField(data, f, obj);
 		} finally {
 			f.setAccessible(false);
 		}
 	}
 	
+	/**
+	 * Writes a field that has already been made accessible, without changing its accessibility
+	 */
+	static void writeAccessibleField(CompositeBuffer data, Field f, Object obj) throws ReflectiveOperationException {
+		Object value = f.get(obj);
+		
+		StructAdapter annotation = f.getAnnotation(StructAdapter.class);
+		if(annotation != null) {
+			writeWithAdapter(data, annotation, value, obj);
+		} else {
+			Class<?> type = f.getType();
+			if(type.isPrimitive()) {
+				writePrimitive(data, value, type);
+				
+			} else if(type.isArray()) {
+				writeArray(data, value, type, f);
+				
+			} else if(type.isEnum()) {
+				writeEnum(data, value, type, f);
+				
+			} else if(type == String.class) {
+				writeString(data, value.toString(), f);
+				
+			} else {
+				write(data, type, value);
+			}
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
-	private static <T> void writeWithAdapter(ByteBuffer data, StructAdapter annotation, Object value, Object obj) {
+	private static <T> void writeWithAdapter(CompositeBuffer data, StructAdapter annotation, Object value, Object obj) {
 		StructTypeAdapter<T> adapter = (StructTypeAdapter<T>) StructUtils.createObj(annotation.value());
-		adapter.write(data, (T) value, obj);
+		if(adapter instanceof CompositeTypeAdapter) {
+			((CompositeTypeAdapter<T>) adapter).write(data, (T) value, obj);
+			return;
+		}
+		
+		ByteBuffer buf = data.contiguousRemaining();
+		if(buf != null) {
+			adapter.write(buf, (T) value, obj);
+			return;
+		}
+		
+		// other adapters only understand a single ByteBuffer, so fragmented data has to be written through a temporary one
+		buf = data.adapterOutput();
+		adapter.write(buf, (T) value, obj);
+		buf.flip();
+		data.put(buf);
 	}
 	
-	private static void putSizedField(ByteBuffer data, int length, Field f) {
+	private static void putSizedField(CompositeBuffer data, int length, Field f) {
 		int size = StructUtils.getSizeType(f);
 		if(size == 1) {
 			data.put((byte) length);
@@ -105,12 +183,12 @@ public class StructWriter {
 		return -1;
 	}
 	
-	private static void writeEnum(ByteBuffer data, Object value, Class<?> type, Field f) {
+	private static void writeEnum(CompositeBuffer data, Object value, Class<?> type, Field f) {
 		int index = getEnumIndex(value, type);
 		putSizedField(data, index, f);
 	}
 	
-	private static void writeString(ByteBuffer data, String str, Field f) {
+	private static void writeString(CompositeBuffer data, String str, Field f) {
 		// collect the variables
 		BasicCharset bchar = BasicCharset.ASCII;
 		int minLength = 0;
@@ -211,10 +289,9 @@ public class StructWriter {
 			end += length;
 			char[] chars = new char[writeLength];
 			str.getChars(0, writeLength, chars, 0);
-			CharBuffer buf = data.asCharBuffer(); 
-			buf.put(chars);
+			data.putChars(chars, 0, writeLength);
 			while(writeLength++ < length) {
-				buf.put('\0');
+				data.putChar('\0');
 			}
 			data.position(end);
 		} else {
@@ -232,7 +309,7 @@ public class StructWriter {
 		}
 	}
 	
-	private static void writePrimitive(ByteBuffer data, Object obj, Class<?> type) {
+	private static void writePrimitive(CompositeBuffer data, Object obj, Class<?> type) {
 		if(type == Integer.TYPE) data.putInt((Integer) obj);
 		if(type == Long.TYPE) data.putLong((Long) obj);
 		if(type == Short.TYPE) data.putShort((Short) obj);
@@ -243,7 +320,7 @@ public class StructWriter {
 		if(type == Character.TYPE) data.putChar((Character) obj);
 	}
 	
-	private static void writeArray(ByteBuffer data, Object array, Class<?> arrayType, Field f) {
+	private static void writeArray(CompositeBuffer data, Object array, Class<?> arrayType, Field f) {
 		int length = Array.getLength(array);
 		Class<?> elemType = arrayType.getComponentType();
 		
@@ -0,0 +1,28 @@
+package com.ehgames.struct.adapters;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an int or long field as a checksum over the bytes of the preceding fields.
+ * When reading, the checksum is computed over the bytes just read and compared against the stored value,
+ * throwing a {@link ChecksumException} on mismatch.
+ * When writing, the stored value of the field is ignored and the checksum of the bytes just written is written in its place.
+ * Long fields are written as 8 bytes holding the unsigned 32-bit checksum.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Checksum {
+	ChecksumType type() default ChecksumType.CRC32C;
+	/**
+	 * Name of the first field covered by the checksum, which must be declared before it in the same class.
+	 * The range covers every byte from the start of that field up to the start of the checksum.
+	 * Naming a field that is not declared before the checksum causes an IllegalArgumentException when reading or writing.
+	 * If empty, the range starts at the beginning of the object, including fields declared in parent classes
+	 */
+	String from() default "";
+}
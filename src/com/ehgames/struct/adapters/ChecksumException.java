@@ -0,0 +1,31 @@
+package com.ehgames.struct.adapters;
+
+/**
+ * Thrown when a field marked with the Checksum annotation does not match the data it covers
+ */
+public class ChecksumException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final long expected;
+	private final long actual;
+
+	public ChecksumException(String fieldName, long expected, long actual) {
+		super("Checksum mismatch for " + fieldName + ": expected " + Long.toHexString(expected) + " but computed " + Long.toHexString(actual));
+		this.expected = expected;
+		this.actual = actual;
+	}
+
+	/**
+	 * @return The checksum stored in the data
+	 */
+	public long getExpected() {
+		return expected;
+	}
+
+	/**
+	 * @return The checksum computed from the data
+	 */
+	public long getActual() {
+		return actual;
+	}
+}
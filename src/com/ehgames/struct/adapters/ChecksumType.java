@@ -0,0 +1,8 @@
+package com.ehgames.struct.adapters;
+
+/**
+ * The checksum algorithms that the Checksum annotation supports.
+ */
+public enum ChecksumType {
+	CRC32, CRC32C, ADLER32;
+}
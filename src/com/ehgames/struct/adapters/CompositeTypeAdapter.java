@@ -0,0 +1,27 @@
+package com.ehgames.struct.adapters;
+
+import java.nio.ByteBuffer;
+
+import com.ehgames.struct.CompositeBuffer;
+
+/**
+ * A StructTypeAdapter that can read and write a CompositeBuffer directly.
+ * Plain StructTypeAdapters are handed a copy of the remaining data when it is split across fragments,
+ * while these are always handed the CompositeBuffer itself, so no copy is ever made for them.
+ * The ByteBuffer methods are still used by code outside of StructReader and StructWriter that calls the adapter directly.
+ */
+public interface CompositeTypeAdapter<T> extends StructTypeAdapter<T> {
+	public T read(CompositeBuffer data, Object container);
+	
+	public void write(CompositeBuffer data, T obj, Object container);
+	
+	@Override
+	public default T read(ByteBuffer data, Object container) {
+		return read(new CompositeBuffer(data), container);
+	}
+	
+	@Override
+	public default void write(ByteBuffer data, T obj, Object container) {
+		write(new CompositeBuffer(data), obj, container);
+	}
+}